@@ -0,0 +1,398 @@
+package application;
+
+import java.io.*;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Local compression service so other processes can use the codec without JVM startup.
+ *
+ * Listens on a Unix domain socket or a loopback TCP port. Every connection runs on its
+ * own virtual thread and may send any number of requests:
+ *
+ *   request:  op (1 byte: 'C' compress, 'D' decompress, 'S' stats), length (int), payload
+ *   response: status (1 byte, see STATUS_*), length (int), payload
+ *
+ * Ints are big-endian (same as BitOutputStream.writeInt). Error responses carry a UTF-8 message.
+ */
+public class CompressionServer implements Closeable {
+
+    public static final int OP_COMPRESS = 'C';
+    public static final int OP_DECOMPRESS = 'D';
+    public static final int OP_STATS = 'S';
+
+    public static final int STATUS_OK = 0;
+    public static final int STATUS_ERROR = 1;
+    public static final int STATUS_BUSY = 2;
+
+    // maxConnections: open connections (extra ones get STATUS_BUSY and are closed);
+    // maxConcurrent: requests being coded at once; queueTimeoutMillis: how long a request
+    // waits for a slot before it is answered with STATUS_BUSY; ioTimeoutMillis: longest a
+    // single request read or response write may take before the connection is dropped;
+    // idleTimeoutMillis: longest a connection may wait between requests before it is closed;
+    // maxRequestBytes: payload cap; maxOutputBytes: cap on the decoded size a decompress
+    // request may claim in its header
+    public record Config(int maxConnections, int maxConcurrent, long queueTimeoutMillis, long ioTimeoutMillis,
+                         long idleTimeoutMillis, int maxRequestBytes, int maxOutputBytes) {
+        public static Config defaults() {
+            int maxRequest = 64 * 1024 * 1024;
+            return new Config(256, Runtime.getRuntime().availableProcessors(), 5_000, 30_000, 60_000,
+                              maxRequest, maxRequest);
+        }
+    }
+
+    private static final long ACCEPT_RETRY_MILLIS = 100;
+
+    // Connection buffers that grew past this are dropped after the request instead of kept
+    private static final int RETAIN_BUFFER_BYTES = 1024 * 1024;
+
+    // Code tables reused by whichever request holds a slot
+    private static class CodeTables {
+        final int[] freq = new int[256];
+        final String[] codes = new String[256];
+    }
+
+    // Per-connection streams and buffers, reused across that connection's requests. The payload is
+    // uploaded into data and the response written from result without holding a coding slot.
+    private static class Connection {
+        final SocketChannel client;
+        final DataInputStream in;
+        final DataOutputStream out;
+        byte[] data = new byte[8192];
+        ReusableOutput result = new ReusableOutput();
+
+        Connection(SocketChannel client) {
+            this.client = client;
+            this.in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(client), 8192));
+            this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(client), 8192));
+        }
+
+        void trim() {
+            if (data.length > RETAIN_BUFFER_BYTES) data = new byte[8192];
+            if (result.buffer().length > RETAIN_BUFFER_BYTES) result = new ReusableOutput();
+        }
+    }
+
+    private static class ReusableOutput extends ByteArrayOutputStream {
+        ReusableOutput() { super(8192); }
+        byte[] buffer() { return buf; }
+    }
+
+    private final ServerSocketChannel server;
+    private final Path unixPath;
+    private final Config config;
+    private final Semaphore connections;
+    private final Semaphore slots;
+    private final BlockingQueue<CodeTables> tables;
+    private final LatencyStats stats = new LatencyStats();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "compression-server-timeouts");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private CompressionServer(ServerSocketChannel server, Path unixPath, Config config) {
+        if (config.maxConcurrent() < 1) throw new IllegalArgumentException("maxConcurrent must be >= 1");
+        if (config.maxConnections() < 1) throw new IllegalArgumentException("maxConnections must be >= 1");
+        this.server = server;
+        this.unixPath = unixPath;
+        this.config = config;
+        this.connections = new Semaphore(config.maxConnections());
+        this.slots = new Semaphore(config.maxConcurrent(), true);
+        this.tables = new ArrayBlockingQueue<>(config.maxConcurrent());
+        for (int i = 0; i < config.maxConcurrent(); i++) tables.add(new CodeTables());
+    }
+
+    public static CompressionServer unix(Path socketPath, Config config) throws IOException {
+        removeStaleSocket(socketPath);
+        ServerSocketChannel ch = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        ch.bind(UnixDomainSocketAddress.of(socketPath));
+        return new CompressionServer(ch, socketPath, config);
+    }
+
+    // Only a socket file nobody is listening on (left by a previous run) is removed; anything else is an error
+    private static void removeStaleSocket(Path path) throws IOException {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        if (!attrs.isOther()) {
+            throw new IOException(path + " already exists and is not a socket");
+        }
+        try {
+            SocketChannel.open(UnixDomainSocketAddress.of(path)).close();
+        } catch (ConnectException e) {
+            // stale socket
+            Files.delete(path);
+            return;
+        }
+        throw new IOException("Another server is already listening on " + path);
+    }
+
+    public static CompressionServer tcp(int port, Config config) throws IOException {
+        ServerSocketChannel ch = ServerSocketChannel.open();
+        ch.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        return new CompressionServer(ch, null, config);
+    }
+
+    public SocketAddress address() throws IOException {
+        return server.getLocalAddress();
+    }
+
+    public LatencyStats stats() {
+        return stats;
+    }
+
+    // Blocks accepting connections until close() is called
+    public void serve() throws IOException {
+        while (server.isOpen()) {
+            SocketChannel client;
+            try {
+                client = server.accept();
+            } catch (IOException e) {
+                if (!server.isOpen()) return;
+                // e.g. out of file descriptors under a connection flood; back off and keep serving
+                System.err.println("accept failed: " + e.getMessage());
+                try {
+                    Thread.sleep(ACCEPT_RETRY_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                continue;
+            }
+            try {
+                executor.submit(() -> handle(client));
+            } catch (RejectedExecutionException e) {
+                // close() ran between accept and submit
+                client.close();
+                return;
+            }
+        }
+    }
+
+    private void handle(SocketChannel client) {
+        try (client) {
+            Connection c = new Connection(client);
+            if (!connections.tryAcquire()) {
+                stats.recordRejected();
+                respond(c, STATUS_BUSY, "Too many connections");
+                return;
+            }
+            try {
+                while (true) {
+                    int op;
+                    ScheduledFuture<?> idle = deadline(client, config.idleTimeoutMillis());
+                    try {
+                        op = c.in.read();
+                    } finally {
+                        idle.cancel(false);
+                    }
+                    if (op == -1) return;
+
+                    int length;
+                    ScheduledFuture<?> deadline = deadline(client, config.ioTimeoutMillis());
+                    try {
+                        length = c.in.readInt();
+                    } finally {
+                        deadline.cancel(false);
+                    }
+                    handleRequest(c, op, length);
+                    c.trim();
+                }
+            } finally {
+                connections.release();
+            }
+        } catch (IOException e) {
+            // client went away or timed out mid-request, nothing to answer
+        }
+    }
+
+    private void handleRequest(Connection c, int op, int length) throws IOException {
+        if (length < 0 || length > config.maxRequestBytes()) {
+            // can't resync the stream without reading it all, so drop the connection
+            respond(c, STATUS_ERROR, "Request length " + length + " out of range (max " + config.maxRequestBytes() + ")");
+            throw new EOFException();
+        }
+
+        // Upload first: a slow or stalled client must not hold a coding slot
+        readPayload(c, length);
+        if (op == OP_STATS) {
+            respond(c, STATUS_OK, stats.toString());
+            return;
+        }
+        if (op != OP_COMPRESS && op != OP_DECOMPRESS) {
+            respond(c, STATUS_ERROR, "Unknown op " + op);
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = slots.tryAcquire(config.queueTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a slot");
+        }
+        if (!acquired) {
+            stats.recordRejected();
+            respond(c, STATUS_BUSY, "Server busy");
+            return;
+        }
+
+        c.result.reset();
+        CodeTables t = tables.poll();
+        try {
+            if (op == OP_COMPRESS) {
+                HuffmanCodec.compress(c.data, length, c.result, t.freq, t.codes);
+            } else {
+                HuffmanCodec.DecompressResult res = HuffmanCodec.decompress(
+                        new ByteArrayInputStream(c.data, 0, length), c.result, config.maxOutputBytes());
+                if (res.decodedSize() != res.expectedSize()) {
+                    throw new IOException("Compressed data truncated: decoded " + res.decodedSize()
+                            + " of " + res.expectedSize() + " bytes");
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            stats.recordError();
+            respond(c, STATUS_ERROR, String.valueOf(e.getMessage()));
+            return;
+        } finally {
+            tables.add(t);
+            slots.release();
+        }
+
+        respond(c, STATUS_OK, c.result.buffer(), c.result.size());
+        stats.record(System.nanoTime() - start);
+    }
+
+    // Closes the connection unless cancelled within millis. A read or write blocked on a stalled
+    // or idle client then fails, so it can't hold its connection permit indefinitely.
+    private ScheduledFuture<?> deadline(SocketChannel client, long millis) {
+        return timer.schedule(() -> {
+            try {
+                client.close();
+            } catch (IOException ignored) {
+            }
+        }, millis, TimeUnit.MILLISECONDS);
+    }
+
+    // Reads length payload bytes into c.data. The buffer grows as bytes actually arrive, so a
+    // client that announces a large length and then stalls only costs what it has sent.
+    private void readPayload(Connection c, int length) throws IOException {
+        ScheduledFuture<?> deadline = deadline(c.client, config.ioTimeoutMillis());
+        try {
+            int filled = 0;
+            while (filled < length) {
+                if (filled == c.data.length) {
+                    c.data = Arrays.copyOf(c.data, (int) Math.min(length, 2L * c.data.length));
+                }
+                int n = Math.min(length, c.data.length) - filled;
+                c.in.readFully(c.data, filled, n);
+                filled += n;
+            }
+        } finally {
+            deadline.cancel(false);
+        }
+    }
+
+    private void respond(Connection c, int status, String text) throws IOException {
+        byte[] b = text.getBytes(StandardCharsets.UTF_8);
+        respond(c, status, b, b.length);
+    }
+
+    private void respond(Connection c, int status, byte[] payload, int length) throws IOException {
+        ScheduledFuture<?> deadline = deadline(c.client, config.ioTimeoutMillis());
+        try {
+            c.out.writeByte(status);
+            c.out.writeInt(length);
+            c.out.write(payload, 0, length);
+            c.out.flush();
+        } finally {
+            deadline.cancel(false);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        executor.shutdown();
+        timer.shutdownNow();
+        if (unixPath != null) Files.deleteIfExists(unixPath);
+    }
+
+    // Usage: CompressionServer (--unix <path> | --tcp <port>) [--max-connections n] [--max-concurrent n]
+    //                          [--queue-timeout ms] [--io-timeout ms] [--idle-timeout ms]
+    //                          [--max-request bytes] [--max-output bytes (default: --max-request)]
+    public static void main(String[] args) throws IOException {
+        Config d = Config.defaults();
+        int maxConnections = d.maxConnections();
+        int maxConcurrent = d.maxConcurrent();
+        long queueTimeout = d.queueTimeoutMillis();
+        long ioTimeout = d.ioTimeoutMillis();
+        long idleTimeout = d.idleTimeoutMillis();
+        int maxRequest = d.maxRequestBytes();
+        int maxOutput = -1;
+        Path unix = null;
+        int port = -1;
+
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            if (i + 1 >= args.length) throw new IllegalArgumentException("Missing value for " + a);
+            String v = args[++i];
+            switch (a) {
+                case "--unix" -> unix = Path.of(v);
+                case "--tcp" -> port = Integer.parseInt(v);
+                case "--max-connections" -> maxConnections = Integer.parseInt(v);
+                case "--max-concurrent" -> maxConcurrent = Integer.parseInt(v);
+                case "--queue-timeout" -> queueTimeout = Long.parseLong(v);
+                case "--io-timeout" -> ioTimeout = Long.parseLong(v);
+                case "--idle-timeout" -> idleTimeout = Long.parseLong(v);
+                case "--max-request" -> maxRequest = Integer.parseInt(v);
+                case "--max-output" -> maxOutput = Integer.parseInt(v);
+                default -> throw new IllegalArgumentException("Unknown option " + a);
+            }
+        }
+        if ((unix == null) == (port < 0)) {
+            throw new IllegalArgumentException("Specify exactly one of --unix <path> or --tcp <port>");
+        }
+
+        Config config = new Config(maxConnections, maxConcurrent, queueTimeout, ioTimeout, idleTimeout,
+                                   maxRequest, (maxOutput < 0) ? maxRequest : maxOutput);
+        CompressionServer s = (unix != null) ? unix(unix, config) : tcp(port, config);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                s.close();
+            } catch (IOException ignored) {
+            }
+        }));
+        System.out.println("Listening on " + s.address());
+        s.serve();
+    }
+}
@@ -2,23 +2,27 @@ package application;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 
 public class HuffmanCodec {
 
     public record CompressResult(long originalSize, long compressedSize,
                                  List<HuffmanData> table, String headerText) {}
-    public record DecompressResult(long decodedSize) {}
+    // expectedSize is ORIGINAL_SIZE from the header; decodedSize is smaller if the bit stream ended early
+    public record DecompressResult(long decodedSize, long expectedSize) {}
 
    
     public static CompressResult compress(File input, File output) throws IOException {
 
         byte[] data = readAllBytes(input);
-        int[] freq = buildFrequencies(data);
-        HNode root = buildTree(freq);
-
+        int[] freq = new int[256];
         String[] codes = new String[256];
-        if (root != null) buildCodes(root, "", codes);
+
+        try (FileOutputStream fos = new FileOutputStream(output)) {
+            compress(data, data.length, fos, freq, codes);
+        }
 
         List<HuffmanData> table = new ArrayList<>();
         int symbolsCount = 0;
@@ -29,30 +33,6 @@ public class HuffmanCodec {
             }
         }
 
-        try (FileOutputStream fos = new FileOutputStream(output)) {
-
-            StringBuilder header = new StringBuilder();
-            header.append("ORIGINAL_SIZE=").append(data.length).append('\n');
-            header.append("SYMBOLS=").append(symbolsCount).append('\n');
-            for (int b = 0; b < 256; b++) {
-                if (freq[b] > 0) header.append(b).append(' ').append(freq[b]).append('\n');
-            }
-            header.append("END_HEADER\n");
-
-            fos.write(header.toString().getBytes("UTF-8"));
-            fos.flush();
-
-            try (BitOutputStream bout = new BitOutputStream(fos)) {
-                for (byte x : data) {
-                    int b = x & 0xFF;
-                    String code = codes[b];
-                    for (int i = 0; i < code.length(); i++) {
-                        bout.writeBit(code.charAt(i) == '1' ? 1 : 0);
-                    }
-                }
-            }
-        }
-
         StringBuilder hdr = new StringBuilder();
         hdr.append("ORIGINAL_SIZE=").append(data.length).append("\n");
         hdr.append("SYMBOLS=").append(symbolsCount).append("\n");
@@ -62,48 +42,101 @@ public class HuffmanCodec {
         return new CompressResult(data.length, output.length(), table, hdr.toString());
     }
 
+    // Stream version: writes header + bits of data[0..length) to out (out is flushed, not closed)
+    public static void compress(byte[] data, int length, OutputStream out) throws IOException {
+        compress(data, length, out, new int[256], new String[256]);
+    }
+
+    // freq/codes are scratch tables (256 entries each), refilled here so callers can reuse them
+    static void compress(byte[] data, int length, OutputStream out,
+                         int[] freq, String[] codes) throws IOException {
+
+        // checked up front so a bad length can't leave a header with no body in out
+        Objects.checkFromIndexSize(0, length, data.length);
+        buildFrequencies(data, length, freq);
+        HNode root = buildTree(freq);
+
+        Arrays.fill(codes, null);
+        if (root != null) buildCodes(root, "", codes);
+
+        int symbolsCount = 0;
+        for (int f : freq) if (f > 0) symbolsCount++;
+
+        StringBuilder header = new StringBuilder();
+        header.append("ORIGINAL_SIZE=").append(length).append('\n');
+        header.append("SYMBOLS=").append(symbolsCount).append('\n');
+        for (int b = 0; b < 256; b++) {
+            if (freq[b] > 0) header.append(b).append(' ').append(freq[b]).append('\n');
+        }
+        header.append("END_HEADER\n");
+
+        out.write(header.toString().getBytes("UTF-8"));
+        out.flush();
+
+        BitOutputStream bout = new BitOutputStream(out);
+        for (int k = 0; k < length; k++) {
+            String code = codes[data[k] & 0xFF];
+            for (int i = 0; i < code.length(); i++) {
+                bout.writeBit(code.charAt(i) == '1' ? 1 : 0);
+            }
+        }
+        bout.flush();
+    }
+
 
     public static DecompressResult decompress(File compressed, File decodedOut) throws IOException {
 
         try (FileInputStream fis = new FileInputStream(compressed);
              FileOutputStream fos = new FileOutputStream(decodedOut)) {
+            return decompress(fis, fos);
+        }
+    }
 
-            // 1) Read TEXT HEADER safely
-            HeaderInfo info = readTextHeader(fis);
+    // Stream version: reads one compressed block from in and writes the decoded bytes to out (neither is closed)
+    public static DecompressResult decompress(InputStream in, OutputStream out) throws IOException {
+        return decompress(in, out, Integer.MAX_VALUE);
+    }
 
-            int originalSize = info.originalSize;
-            int[] freq = info.freq;
+    // Same, but refuses (before decoding anything) a header whose ORIGINAL_SIZE is above maxOutput
+    public static DecompressResult decompress(InputStream in, OutputStream out, long maxOutput) throws IOException {
 
-            // 2) Rebuild tree
-            HNode root = buildTree(freq);
-            if (root == null) return new DecompressResult(0);
+        // 1) Read TEXT HEADER safely
+        HeaderInfo info = readTextHeader(in);
 
-            // Special case: only one symbol
-            if (root.isLeaf()) {
-                for (int i = 0; i < originalSize; i++) fos.write(root.value);
-                return new DecompressResult(originalSize);
-            }
+        int originalSize = info.originalSize;
+        if (originalSize < 0 || originalSize > maxOutput) {
+            throw new IOException("ORIGINAL_SIZE=" + originalSize + " out of range (max " + maxOutput + ")");
+        }
+        int[] freq = info.freq;
 
-            // 3) Decode bits
-            long written = 0;
-            HNode cur = root;
-
-            try (BitInputStream bin = new BitInputStream(fis)) {
-                while (written < originalSize) {
-                    int bit = bin.readBit();
-                    if (bit == -1) break;
-
-                    cur = (bit == 0) ? cur.left : cur.right;
-                    if (cur.isLeaf()) {
-                        fos.write(cur.value);
-                        written++;
-                        cur = root;
-                    }
-                }
-            }
+        // 2) Rebuild tree
+        HNode root = buildTree(freq);
+        if (root == null) return new DecompressResult(0, originalSize);
 
-            return new DecompressResult(written);
+        // Special case: only one symbol
+        if (root.isLeaf()) {
+            for (int i = 0; i < originalSize; i++) out.write(root.value);
+            return new DecompressResult(originalSize, originalSize);
         }
+
+        // 3) Decode bits
+        long written = 0;
+        HNode cur = root;
+
+        BitInputStream bin = new BitInputStream(in);
+        while (written < originalSize) {
+            int bit = bin.readBit();
+            if (bit == -1) break;
+
+            cur = (bit == 0) ? cur.left : cur.right;
+            if (cur.isLeaf()) {
+                out.write(cur.value);
+                written++;
+                cur = root;
+            }
+        }
+
+        return new DecompressResult(written, originalSize);
     }
 
     private static class HeaderInfo {
@@ -161,10 +194,9 @@ public class HuffmanCodec {
         }
     }
 
-    private static int[] buildFrequencies(byte[] data) {
-        int[] freq = new int[256];
-        for (byte b : data) freq[b & 0xFF]++;
-        return freq;
+    private static void buildFrequencies(byte[] data, int length, int[] freq) {
+        Arrays.fill(freq, 0);
+        for (int i = 0; i < length; i++) freq[data[i] & 0xFF]++;
     }
 
     private static HNode buildTree(int[] freq) {
@@ -0,0 +1,60 @@
+package application;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-request latency for CompressionServer. Latencies go into power-of-two nanosecond
+// buckets, so percentiles are upper bounds (within 2x) but recording never locks.
+public class LatencyStats {
+
+    public record Snapshot(long requests, long errors, long rejected,
+                           long meanMicros, long p50Micros, long p99Micros, long maxMicros) {}
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLongArray buckets = new AtomicLongArray(64);
+
+    public void record(long nanos) {
+        requests.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(Math.max(nanos, 1)) - 1);
+    }
+
+    public void recordError() { errors.increment(); }
+    public void recordRejected() { rejected.increment(); }
+
+    public Snapshot snapshot() {
+        long n = requests.sum();
+        long mean = (n == 0) ? 0 : totalNanos.sum() / n;
+        return new Snapshot(n, errors.sum(), rejected.sum(),
+                mean / 1000, percentile(n, 0.50) / 1000, percentile(n, 0.99) / 1000, maxNanos.get() / 1000);
+    }
+
+    private long percentile(long n, double p) {
+        if (n == 0) return 0;
+        long target = (long) Math.ceil(n * p);
+        long seen = 0;
+        for (int i = 0; i < 64; i++) {
+            seen += buckets.get(i);
+            if (seen >= target) return (i >= 62) ? maxNanos.get() : Math.min(1L << (i + 1), maxNanos.get());
+        }
+        return maxNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        Snapshot s = snapshot();
+        return "requests=" + s.requests() + "\n"
+             + "errors=" + s.errors() + "\n"
+             + "rejected=" + s.rejected() + "\n"
+             + "mean_us=" + s.meanMicros() + "\n"
+             + "p50_us=" + s.p50Micros() + "\n"
+             + "p99_us=" + s.p99Micros() + "\n"
+             + "max_us=" + s.maxMicros() + "\n";
+    }
+}
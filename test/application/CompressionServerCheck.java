@@ -0,0 +1,171 @@
+package application;
+
+import static application.HuffmanCodecCheck.check;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Exercises the wire protocol end to end over both transports (needs JDK 21)
+public class CompressionServerCheck {
+
+    record Response(int status, byte[] payload) {
+        String text() { return new String(payload, StandardCharsets.UTF_8); }
+    }
+
+    static class Client implements Closeable {
+        final SocketChannel ch;
+        final DataInputStream in;
+        final DataOutputStream out;
+
+        Client(SocketChannel ch) {
+            this.ch = ch;
+            this.in = new DataInputStream(Channels.newInputStream(ch));
+            this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch)));
+        }
+
+        Response call(int op, byte[] payload) throws IOException {
+            out.writeByte(op);
+            out.writeInt(payload.length);
+            out.write(payload);
+            out.flush();
+            return read();
+        }
+
+        Response read() throws IOException {
+            int status = in.readUnsignedByte();
+            byte[] payload = new byte[in.readInt()];
+            in.readFully(payload);
+            return new Response(status, payload);
+        }
+
+        @Override
+        public void close() throws IOException {
+            ch.close();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path sock = Files.createTempDirectory("huffman").resolve("server.sock");
+        CompressionServer.Config config = new CompressionServer.Config(3, 1, 2_000, 300, 500, 1 << 20, 1 << 20);
+
+        try (CompressionServer unix = start(CompressionServer.unix(sock, config))) {
+            try (Client c = new Client(SocketChannel.open(unix.address()))) {
+                requests(c);
+            }
+        }
+        check(!Files.exists(sock), "socket file removed on close");
+
+        try (CompressionServer tcp = start(CompressionServer.tcp(0, config))) {
+            try (Client c = new Client(SocketChannel.open(tcp.address()))) {
+                requests(c);
+            }
+            limits(tcp);
+        }
+
+        // Long I/O timeout, short queue timeout: if stalled uploads held the only slot, this would get BUSY
+        try (CompressionServer tcp = start(CompressionServer.tcp(0, new CompressionServer.Config(4, 1, 200, 10_000, 10_000, 1 << 20, 1 << 20)))) {
+            stalledUploads(tcp);
+        }
+
+        System.out.println("CompressionServerCheck OK");
+    }
+
+    static CompressionServer start(CompressionServer server) {
+        Thread t = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        t.setDaemon(true);
+        t.start();
+        return server;
+    }
+
+    static void requests(Client c) throws IOException {
+        byte[] sample = Files.readAllBytes(HuffmanCodecCheck.RESOURCES.resolve("sample.bin"));
+        byte[] golden = Files.readAllBytes(HuffmanCodecCheck.RESOURCES.resolve("sample.huf"));
+
+        // Several requests on one connection; compress output matches the file format
+        Response r = c.call(CompressionServer.OP_COMPRESS, sample);
+        check(r.status() == CompressionServer.STATUS_OK && Arrays.equals(golden, r.payload()), "compress over socket");
+        r = c.call(CompressionServer.OP_DECOMPRESS, golden);
+        check(r.status() == CompressionServer.STATUS_OK && Arrays.equals(sample, r.payload()), "decompress over socket");
+        for (byte[] in : new byte[][] { new byte[0], "x".getBytes(), "mississippi".getBytes() }) {
+            byte[] back = c.call(CompressionServer.OP_DECOMPRESS, c.call(CompressionServer.OP_COMPRESS, in).payload()).payload();
+            check(Arrays.equals(in, back), "round trip of " + in.length + " bytes");
+        }
+
+        r = c.call(CompressionServer.OP_DECOMPRESS, "garbage".getBytes());
+        check(r.status() == CompressionServer.STATUS_ERROR, "garbage rejected");
+        r = c.call(CompressionServer.OP_DECOMPRESS, Arrays.copyOf(golden, golden.length - 100));
+        check(r.status() == CompressionServer.STATUS_ERROR && r.text().contains("truncated"), "truncated rejected");
+        r = c.call(CompressionServer.OP_DECOMPRESS, "ORIGINAL_SIZE=2000000000\nSYMBOLS=1\n97 5\nEND_HEADER\n".getBytes());
+        check(r.status() == CompressionServer.STATUS_ERROR && r.text().contains("out of range"), "output cap");
+        r = c.call('?', new byte[3]);
+        check(r.status() == CompressionServer.STATUS_ERROR, "unknown op");
+
+        // The connection is still usable after errors
+        r = c.call(CompressionServer.OP_STATS, new byte[0]);
+        check(r.status() == CompressionServer.STATUS_OK && r.text().contains("requests=8\n")
+                && r.text().contains("errors=3\n"), "stats:\n" + r.text());
+    }
+
+    static void limits(CompressionServer server) throws Exception {
+        // A client that sends a header and stalls is dropped once the I/O timeout passes
+        try (Client staller = new Client(SocketChannel.open(server.address()))) {
+            staller.out.writeByte(CompressionServer.OP_COMPRESS);
+            staller.out.writeInt(1000);
+            staller.out.flush();
+            check(staller.in.read() == -1, "stalled client disconnected");
+        }
+
+        // Connections over maxConnections (3) get STATUS_BUSY and are closed
+        Thread.sleep(200); // let the handlers above see EOF and release their connections
+        try (Client a = new Client(SocketChannel.open(server.address()));
+             Client b = new Client(SocketChannel.open(server.address()));
+             Client c = new Client(SocketChannel.open(server.address()))) {
+            check(a.call(CompressionServer.OP_STATS, new byte[0]).status() == CompressionServer.STATUS_OK, "conn 1");
+            check(b.call(CompressionServer.OP_STATS, new byte[0]).status() == CompressionServer.STATUS_OK, "conn 2");
+            check(c.call(CompressionServer.OP_STATS, new byte[0]).status() == CompressionServer.STATUS_OK, "conn 3");
+            try (Client d = new Client(SocketChannel.open(server.address()))) {
+                check(d.read().status() == CompressionServer.STATUS_BUSY, "connection over the cap");
+                check(d.in.read() == -1, "connection over the cap closed");
+            }
+
+            // Left idle past idleTimeoutMillis (500), they are closed and their permits freed
+            check(a.in.read() == -1 && b.in.read() == -1 && c.in.read() == -1, "idle connections closed");
+            Thread.sleep(100);
+            try (Client e = new Client(SocketChannel.open(server.address()))) {
+                check(e.call(CompressionServer.OP_STATS, new byte[0]).status() == CompressionServer.STATUS_OK,
+                        "permit freed by idle timeout");
+            }
+        }
+    }
+
+    static void stalledUploads(CompressionServer server) throws Exception {
+        // Stalled uploads (header sent, payload never arrives) don't hold the single coding slot
+        try (Client s1 = new Client(SocketChannel.open(server.address()));
+             Client s2 = new Client(SocketChannel.open(server.address()));
+             Client c = new Client(SocketChannel.open(server.address()))) {
+            for (Client s : new Client[] { s1, s2 }) {
+                s.out.writeByte(CompressionServer.OP_COMPRESS);
+                s.out.writeInt(1000);
+                s.out.write(new byte[10]);
+                s.out.flush();
+            }
+            Thread.sleep(100);
+
+            for (int i = 0; i < 3; i++) {
+                Response r = c.call(CompressionServer.OP_COMPRESS, "hello".getBytes());
+                check(r.status() == CompressionServer.STATUS_OK, "request blocked by stalled uploads: " + r.text());
+            }
+        }
+    }
+}
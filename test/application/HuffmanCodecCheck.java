@@ -0,0 +1,96 @@
+package application;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+// Run from the project root (see README). test/resources/sample.huf was written by the
+// File-based compress before the stream overloads existed, so it pins the on-disk format.
+public class HuffmanCodecCheck {
+
+    static final Path RESOURCES = Path.of("test", "resources");
+
+    public static void main(String[] args) throws IOException {
+        byte[] sample = Files.readAllBytes(RESOURCES.resolve("sample.bin"));
+        byte[] golden = Files.readAllBytes(RESOURCES.resolve("sample.huf"));
+
+        // File-based output is byte-for-byte what it was before the refactor
+        File compressed = File.createTempFile("huffman", ".huf");
+        File decoded = File.createTempFile("huffman", ".out");
+        compressed.deleteOnExit();
+        decoded.deleteOnExit();
+        HuffmanCodec.CompressResult cr = HuffmanCodec.compress(RESOURCES.resolve("sample.bin").toFile(), compressed);
+        check(Arrays.equals(golden, Files.readAllBytes(compressed.toPath())), "compress(File) output changed");
+        check(cr.originalSize() == sample.length && cr.compressedSize() == golden.length, "compress(File) sizes");
+
+        HuffmanCodec.DecompressResult dr = HuffmanCodec.decompress(RESOURCES.resolve("sample.huf").toFile(), decoded);
+        check(Arrays.equals(sample, Files.readAllBytes(decoded.toPath())), "decompress(File) output");
+        check(dr.decodedSize() == sample.length && dr.expectedSize() == sample.length, "decompress(File) sizes");
+
+        // Stream compress writes the same bytes as the File version
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        HuffmanCodec.compress(sample, sample.length, bos);
+        check(Arrays.equals(golden, bos.toByteArray()), "compress(stream) differs from compress(File)");
+
+        // Round trips through the stream overloads, reusing the scratch tables like the server does
+        int[] freq = new int[256];
+        String[] codes = new String[256];
+        Random rnd = new Random(26);
+        byte[] random = new byte[50_000];
+        rnd.nextBytes(random);
+        byte[] skewed = new byte[10_000];
+        for (int i = 0; i < skewed.length; i++) skewed[i] = (byte) (rnd.nextInt(8) * rnd.nextInt(8));
+        byte[][] inputs = { new byte[0], { 42 }, "aaaaaaaa".getBytes(), "abracadabra".getBytes(), random, skewed, sample };
+        for (byte[] in : inputs) {
+            bos.reset();
+            HuffmanCodec.compress(in, in.length, bos, freq, codes);
+            ByteArrayOutputStream back = new ByteArrayOutputStream();
+            HuffmanCodec.DecompressResult r = HuffmanCodec.decompress(new ByteArrayInputStream(bos.toByteArray()), back);
+            check(Arrays.equals(in, back.toByteArray()), "round trip of " + in.length + " bytes");
+            check(r.decodedSize() == in.length && r.expectedSize() == in.length, "round trip sizes of " + in.length + " bytes");
+        }
+
+        // Only the first length bytes of the array are encoded
+        bos.reset();
+        byte[] padded = Arrays.copyOf("abracadabra".getBytes(), 64);
+        HuffmanCodec.compress(padded, 11, bos);
+        ByteArrayOutputStream back = new ByteArrayOutputStream();
+        HuffmanCodec.decompress(new ByteArrayInputStream(bos.toByteArray()), back);
+        check("abracadabra".equals(back.toString()), "compress honours length");
+
+        // An invalid length is refused before anything is written
+        for (int bad : new int[] { -1, padded.length + 1 }) {
+            bos.reset();
+            try {
+                HuffmanCodec.compress(padded, bad, bos);
+                check(false, "compress accepted length " + bad);
+            } catch (IndexOutOfBoundsException expected) {
+                check(bos.size() == 0, "output written before the length check");
+            }
+        }
+
+        // A truncated bit stream is reported, not silently accepted
+        back.reset();
+        HuffmanCodec.DecompressResult cut = HuffmanCodec.decompress(
+                new ByteArrayInputStream(Arrays.copyOf(golden, golden.length - 100)), back);
+        check(cut.decodedSize() < cut.expectedSize() && cut.expectedSize() == sample.length, "truncated input sizes");
+
+        // ORIGINAL_SIZE above the cap is refused before anything is written
+        back.reset();
+        byte[] bomb = "ORIGINAL_SIZE=2000000000\nSYMBOLS=1\n97 5\nEND_HEADER\n".getBytes("UTF-8");
+        try {
+            HuffmanCodec.decompress(new ByteArrayInputStream(bomb), back, 1024);
+            check(false, "oversized ORIGINAL_SIZE accepted");
+        } catch (IOException expected) {
+            check(back.size() == 0, "output written before the size check");
+        }
+
+        System.out.println("HuffmanCodecCheck OK");
+    }
+
+    static void check(boolean ok, String what) {
+        if (!ok) throw new AssertionError(what);
+    }
+}
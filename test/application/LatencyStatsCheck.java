@@ -0,0 +1,42 @@
+package application;
+
+import static application.HuffmanCodecCheck.check;
+
+public class LatencyStatsCheck {
+
+    public static void main(String[] args) {
+        LatencyStats empty = new LatencyStats();
+        check(empty.snapshot().equals(new LatencyStats.Snapshot(0, 0, 0, 0, 0, 0, 0)), "empty snapshot");
+
+        // 98 requests at 10us, one at 1ms, one at 50ms
+        LatencyStats s = new LatencyStats();
+        for (int i = 0; i < 98; i++) s.record(10_000);
+        s.record(1_000_000);
+        s.record(50_000_000);
+        s.recordError();
+        s.recordRejected();
+        s.recordRejected();
+
+        LatencyStats.Snapshot snap = s.snapshot();
+        check(snap.requests() == 100 && snap.errors() == 1 && snap.rejected() == 2, "counters");
+        check(snap.maxMicros() == 50_000, "max");
+        check(snap.meanMicros() == (98 * 10_000L + 1_000_000 + 50_000_000) / 100 / 1000, "mean");
+
+        // Percentiles are the upper bound of a power-of-two bucket: within 2x above the true value
+        check(snap.p50Micros() >= 10 && snap.p50Micros() <= 20, "p50 = " + snap.p50Micros());
+        check(snap.p99Micros() >= 1_000 && snap.p99Micros() <= 2_000, "p99 = " + snap.p99Micros());
+
+        // ... but never above the largest latency actually seen
+        LatencyStats one = new LatencyStats();
+        one.record(3_000_000);
+        check(one.snapshot().p99Micros() == 3_000 && one.snapshot().p50Micros() == 3_000, "percentile clamped to max");
+
+        // Zero and huge latencies land in the first and last buckets without overflowing
+        LatencyStats edges = new LatencyStats();
+        edges.record(0);
+        edges.record(Long.MAX_VALUE);
+        check(edges.snapshot().p99Micros() == Long.MAX_VALUE / 1000, "largest bucket");
+
+        System.out.println("LatencyStatsCheck OK");
+    }
+}